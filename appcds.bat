@@ -0,0 +1,38 @@
+@echo off
+rem Called by makeCDS.bat and runHandy.bat. Sets APPCDS_OK=1 if this java
+rem can use an AppCDS archive, and APPCDS_FLAGS to the options it needs:
+rem   Oracle JDK 8u40+  -XX:+UnlockCommercialFeatures -XX:+UseAppCDS
+rem                     (a commercial feature in JDK 8)
+rem   OpenJDK 8         no AppCDS; the options above stop the JVM starting
+rem   JDK 10            -XX:+UseAppCDS (without it, a dump silently leaves
+rem                     out the application classes)
+rem   JDK 11 and later  no extra options
+rem Each choice is checked by starting java with it, so neither script
+rem passes options the installed JVM rejects.
+
+set APPCDS_OK=
+set APPCDS_FLAGS=
+
+java -version 2>&1 | findstr /c:"1.8.0_" >nul
+if errorlevel 1 goto notJDK8
+
+java -XX:+UnlockCommercialFeatures -XX:+UseAppCDS -Xshare:auto -XX:SharedArchiveFile=appcds-probe.jsa -version >nul 2>&1
+if errorlevel 1 goto :eof
+set APPCDS_OK=1
+set APPCDS_FLAGS=-XX:+UnlockCommercialFeatures -XX:+UseAppCDS
+goto :eof
+
+:notJDK8
+java -version 2>&1 | findstr /c:"version \"10" >nul
+if errorlevel 1 goto notJDK10
+
+java -XX:+UseAppCDS -Xshare:auto -XX:SharedArchiveFile=appcds-probe.jsa -version >nul 2>&1
+if errorlevel 1 goto :eof
+set APPCDS_OK=1
+set APPCDS_FLAGS=-XX:+UseAppCDS
+goto :eof
+
+:notJDK10
+java -Xshare:auto -XX:SharedArchiveFile=appcds-probe.jsa -version >nul 2>&1
+if errorlevel 1 goto :eof
+set APPCDS_OK=1
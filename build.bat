@@ -0,0 +1,13 @@
+@echo off
+rem Called by makeCDS.bat and runHandy.bat. Compiles src into build\classes,
+rem so the scripts never run the stale classes in out\production. Sets
+rem BUILD_OK=1 if the compile succeeded.
+
+set BUILD_OK=
+if "%JAVACV_HOME%"=="" set JAVACV_HOME=D:\javacv-bin
+
+call javaflags.bat
+if not exist build\classes mkdir build\classes
+javac %JAVA_FLAGS% -nowarn -d build\classes -cp "%JAVACV_HOME%\*" src\*.java
+if errorlevel 1 goto :eof
+set BUILD_OK=1
@@ -0,0 +1,9 @@
+@echo off
+rem Called by build.bat, makeCDS.bat and runHandy.bat. Sets JAVA_FLAGS to
+rem the options javac and java need for FrameRing's use of
+rem sun.nio.ch.DirectBuffer: none for JDK 8, an export of sun.nio.ch for
+rem JDK 9 and later (which JDK 8 would reject).
+
+set JAVA_FLAGS=
+java -version 2>&1 | findstr /c:"version \"1.8." >nul
+if errorlevel 1 set JAVA_FLAGS=--add-exports java.base/sun.nio.ch=ALL-UNNAMED
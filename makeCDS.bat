@@ -0,0 +1,30 @@
+@echo off
+rem Builds an AppCDS archive (handy.jsa) for Handy's fast start-up mode.
+rem Needs Oracle JDK 8u40+ or JDK 10+ (see appcds.bat); OpenJDK 8 has no
+rem AppCDS. Compiles src first (see build.bat), so it needs a JDK, not a JRE.
+rem Close the Hand Detector window once a hand has been detected; the
+rem classes loaded up to that point are what goes into the archive.
+rem Rebuild the archive whenever the source, the JDK or the javacv jars change.
+
+call appcds.bat
+if not defined APPCDS_OK (
+    echo This JDK can't build an AppCDS archive: use Oracle JDK 8u40+ or JDK 10+.
+    exit /b 1
+)
+
+call build.bat
+if not defined BUILD_OK (
+    echo Could not compile src; no archive built.
+    exit /b 1
+)
+
+rem AppCDS in Java 8 only archives classes loaded from jar files
+jar cf handy.jar -C build\classes .
+set CP=handy.jar;%JAVACV_HOME%\*
+
+call javaflags.bat
+java %JAVA_FLAGS% %APPCDS_FLAGS% -XX:DumpLoadedClassList=handy.classlist -cp "%CP%" Handy -fast
+
+java %APPCDS_FLAGS% -Xshare:dump ^
+     -XX:SharedClassListFile=handy.classlist -XX:SharedArchiveFile=handy.jsa ^
+     -cp "%CP%"
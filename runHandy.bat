@@ -0,0 +1,33 @@
+@echo off
+rem Starts Handy in fast start-up mode. Uses handy.jar and the AppCDS archive
+rem built by makeCDS.bat if they are there; otherwise src is compiled once into
+rem build\classes (see build.bat; delete it to recompile), and Handy starts
+rem from that without the archive. Without AppCDS (e.g. OpenJDK 8, see
+rem appcds.bat) handy.jar is used on its own.
+
+if "%JAVACV_HOME%"=="" set JAVACV_HOME=D:\javacv-bin
+
+set CDS_FLAGS=
+if exist handy.jar goto useJar
+
+if not exist build\classes\Handy.class call build.bat
+if not exist build\classes\Handy.class (
+    echo Could not compile src; is javac on the PATH?
+    exit /b 1
+)
+set CP=build\classes;%JAVACV_HOME%\*
+goto run
+
+:useJar
+set CP=handy.jar;%JAVACV_HOME%\*
+if not exist handy.jsa goto run
+call appcds.bat
+if defined APPCDS_OK (
+    set CDS_FLAGS=%APPCDS_FLAGS% -Xshare:auto -XX:SharedArchiveFile=handy.jsa
+) else (
+    echo This JDK has no AppCDS; starting without handy.jsa
+)
+
+:run
+call javaflags.bat
+java %JAVA_FLAGS% %CDS_FLAGS% -cp "%CP%" Handy -fast
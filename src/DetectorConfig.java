@@ -0,0 +1,150 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+
+/* The settings that trade HandDetector's speed against its accuracy.
+   A configuration is written as one line of name=value pairs, e.g.
+
+     imgScale=2 smallestArea=10.0 maxPoints=20 approxEpsilon=3.0
+         openIterations=1 minFingerDepth=2 maxFingerAngle=120
+
+   (all on one line). Missing names keep their default values. This is the
+   format read from detectorConfig.txt, passed to a HandWorker, and printed
+   by DetectorTuner.
+*/
+public class DetectorConfig {
+    public static final DetectorConfig DEFAULT =
+            new DetectorConfig(2, 10.0f, 20, 3.0, 1, 2, 120);
+
+    private final int imgScale;   // scaling applied to webcam image
+    private final float smallestArea;   // ignore smaller contour areas
+    private final int maxPoints;   // max number of defect points examined
+    private final double approxEpsilon;   // accuracy of the contour approximation, in pixels
+    private final int openIterations;   // morphological opening passes (0 for none)
+    private final int minFingerDepth;   // used for simplifying the defects list
+    private final int maxFingerAngle;   // degrees
+
+
+    public DetectorConfig(int imgScale, float smallestArea, int maxPoints,
+                          double approxEpsilon, int openIterations,
+                          int minFingerDepth, int maxFingerAngle) {
+        this.imgScale = imgScale;
+        this.smallestArea = smallestArea;
+        this.maxPoints = maxPoints;
+        this.approxEpsilon = approxEpsilon;
+        this.openIterations = openIterations;
+        this.minFingerDepth = minFingerDepth;
+        this.maxFingerAngle = maxFingerAngle;
+    } // end of DetectorConfig()
+
+
+    public static DetectorConfig parse(String line) {
+        // build a configuration from name=value pairs, starting from the defaults
+        int imgScale = DEFAULT.imgScale;
+        float smallestArea = DEFAULT.smallestArea;
+        int maxPoints = DEFAULT.maxPoints;
+        double approxEpsilon = DEFAULT.approxEpsilon;
+        int openIterations = DEFAULT.openIterations;
+        int minFingerDepth = DEFAULT.minFingerDepth;
+        int maxFingerAngle = DEFAULT.maxFingerAngle;
+
+        for (String tok : line.trim().split("\\s+")) {
+            if (tok.isEmpty()) {
+                continue;
+            }
+            String[] pair = tok.split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Not a name=value pair: " + tok);
+            }
+            String value = pair[1];
+            if (pair[0].equals("imgScale")) {
+                imgScale = Integer.parseInt(value);
+            } else if (pair[0].equals("smallestArea")) {
+                smallestArea = Float.parseFloat(value);
+            } else if (pair[0].equals("maxPoints")) {
+                maxPoints = Integer.parseInt(value);
+            } else if (pair[0].equals("approxEpsilon")) {
+                approxEpsilon = Double.parseDouble(value);
+            } else if (pair[0].equals("openIterations")) {
+                openIterations = Integer.parseInt(value);
+            } else if (pair[0].equals("minFingerDepth")) {
+                minFingerDepth = Integer.parseInt(value);
+            } else if (pair[0].equals("maxFingerAngle")) {
+                maxFingerAngle = Integer.parseInt(value);
+            } else {
+                throw new IllegalArgumentException("Unknown detector setting: " + pair[0]);
+            }
+        }
+
+        if ((imgScale < 1) || (maxPoints < 1) || (openIterations < 0)) {
+            throw new IllegalArgumentException("Bad detector settings: " + line);
+        }
+        return new DetectorConfig(imgScale, smallestArea, maxPoints, approxEpsilon,
+                openIterations, minFingerDepth, maxFingerAngle);
+    } // end of parse()
+
+
+    public static DetectorConfig load(String fnm) {
+        /* read a configuration from the first non-comment line of fnm,
+        or use the defaults if there is no such file */
+        if (!new File(fnm).exists()) {
+            System.out.println("Using default detector settings");
+            return DEFAULT;
+        }
+        try {
+            BufferedReader in = new BufferedReader(new FileReader(fnm));
+            String line = in.readLine();
+            while ((line != null) && (line.trim().isEmpty() || line.startsWith("#"))) {
+                line = in.readLine();
+            }
+            in.close();
+
+            DetectorConfig config = (line == null) ? DEFAULT : parse(line);
+            System.out.println("Read detector settings from " + fnm + ": " + config);
+            return config;
+        } catch (Exception e) {
+            System.out.println("Could not read detector settings from " + fnm);
+            System.out.println(e.getMessage());
+            System.exit(1);
+            return null;
+        }
+    } // end of load()
+
+
+    public int getImgScale() {
+        return imgScale;
+    }
+
+    public float getSmallestArea() {
+        return smallestArea;
+    }
+
+    public int getMaxPoints() {
+        return maxPoints;
+    }
+
+    public double getApproxEpsilon() {
+        return approxEpsilon;
+    }
+
+    public int getOpenIterations() {
+        return openIterations;
+    }
+
+    public int getMinFingerDepth() {
+        return minFingerDepth;
+    }
+
+    public int getMaxFingerAngle() {
+        return maxFingerAngle;
+    }
+
+
+    public String toString() {
+        return "imgScale=" + imgScale + " smallestArea=" + smallestArea +
+                " maxPoints=" + maxPoints + " approxEpsilon=" + approxEpsilon +
+                " openIterations=" + openIterations + " minFingerDepth=" + minFingerDepth +
+                " maxFingerAngle=" + maxFingerAngle;
+    } // end of toString()
+
+} // end of DetectorConfig class
@@ -0,0 +1,279 @@
+import org.bytedeco.javacpp.opencv_core.*;
+
+import java.awt.Point;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.bytedeco.javacpp.opencv_imgcodecs.*;
+
+/* Searches DetectorConfig settings over a recorded corpus of labelled
+   webcam frames, timing HandDetector.update() (ns/frame) and scoring how
+   well it names finger tips. A labelled tip is correct if a detected tip
+   with the same name is close by; a named detected tip that matches no
+   label (including any on a frame with no labels) is a false positive.
+   The score is the F1 score, 2 * correct / (labelled + named detected),
+   so a configuration can't score well by naming fingers everywhere.
+   The configurations that no other configuration beats on both speed
+   and F1 (the Pareto front) are printed, fastest first, along with the
+   fastest one that meets the F1 floor. Any printed settings line can be
+   copied into detectorConfig.txt.
+
+   The corpus directory holds the frames, in recording order, and a
+   labels.txt file with one line per frame:
+
+     <image file> [<finger name> <x> <y>]...
+
+   e.g. "frame017.png THUMB 212 301 INDEX 260 190", with coordinates in
+   the full-size frame. Frames are processed in order, since the detector
+   uses the previous frame's finger tips to orient the hand.
+
+   Usage: java DetectorTuner <corpus dir> [F1 floor] [number of random configs]
+*/
+public class DetectorTuner {
+    private static final String LABELS_FNM = "labels.txt";
+    private static final String HSV_FNM = "gloveHSV.txt";
+
+    private static final int MATCH_DIST = 20;   // max pixels between a labelled and a detected tip
+    private static final int NUM_TIMED_PASSES = 3;   // the median pass time is used
+    private static final double F1_FLOOR = 0.9;
+    private static final long RANDOM_SEED = 42;
+
+    // the values tried for each setting
+    private static final int[] IMG_SCALES = {1, 2, 3, 4};
+    private static final float[] SMALLEST_AREAS = {10.0f, 100.0f};
+    private static final int[] MAX_POINTS = {10, 20};
+    private static final double[] APPROX_EPSILONS = {1.0, 3.0, 5.0};
+    private static final int[] OPEN_ITERATIONS = {0, 1, 2};
+    private static final int[] MIN_FINGER_DEPTHS = {2, 10, 20};
+    private static final int[] MAX_FINGER_ANGLES = {90, 120};
+
+
+    private static class LabelledFrame {
+        IplImage im;
+        ArrayList<Point> tips = new ArrayList<Point>();
+        ArrayList<FingerName> names = new ArrayList<FingerName>();
+    }
+
+    private static class Result {
+        DetectorConfig config;
+        long nsPerFrame;
+        double f1;
+    }
+
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: java DetectorTuner <corpus dir> [F1 floor] [number of random configs]");
+            System.exit(1);
+        }
+        double floor = (args.length > 1) ? Double.parseDouble(args[1]) : F1_FLOOR;
+
+        ArrayList<LabelledFrame> frames = loadCorpus(args[0]);
+        ArrayList<DetectorConfig> configs = allConfigs();
+        if ((args.length > 2) && (Integer.parseInt(args[2]) < configs.size())) {
+            // try a repeatable random sample of the grid
+            Collections.shuffle(configs, new Random(RANDOM_SEED));
+            configs = new ArrayList<DetectorConfig>(configs.subList(0, Integer.parseInt(args[2])));
+        }
+        System.out.println("Trying " + configs.size() + " configurations on " +
+                frames.size() + " frames");
+        HandDetector.setVerbose(false);   // keep console output out of the timings
+
+        ArrayList<Result> results = new ArrayList<Result>();
+        for (int i = 0; i < configs.size(); i++) {
+            Result r = evaluate(configs.get(i), frames);
+            results.add(r);
+            System.out.printf("[%d/%d] %d ns/frame, F1 %.3f: %s%n",
+                    i + 1, configs.size(), r.nsPerFrame, r.f1, r.config);
+        }
+
+        ArrayList<Result> front = paretoFront(results);
+        System.out.println();
+        System.out.println("Pareto front (fastest first):");
+        System.out.println("  ns/frame     F1  settings");
+        Result chosen = null;
+        for (Result r : front) {
+            System.out.printf("%10d  %5.3f  %s%n", r.nsPerFrame, r.f1, r.config);
+            if ((chosen == null) && (r.f1 >= floor)) {
+                chosen = r;
+            }
+        }
+
+        System.out.println();
+        if (chosen == null) {
+            System.out.printf("No configuration reaches an F1 score of %.3f%n", floor);
+        } else {
+            System.out.printf("Fastest settings with F1 >= %.3f:%n", floor);
+            System.out.println(chosen.config);
+        }
+
+        for (LabelledFrame f : frames) {
+            f.im.release();
+        }
+    } // end of main()
+
+
+    private static ArrayList<LabelledFrame> loadCorpus(String dirName) {
+        // read labels.txt, loading each frame it names
+        ArrayList<LabelledFrame> frames = new ArrayList<LabelledFrame>();
+        File labelsFile = new File(dirName, LABELS_FNM);
+        try {
+            BufferedReader in = new BufferedReader(new FileReader(labelsFile));
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] toks = line.split("\\s+");
+                LabelledFrame f = new LabelledFrame();
+                f.im = cvLoadImage(new File(dirName, toks[0]).getPath(), CV_LOAD_IMAGE_COLOR);
+                if ((f.im == null) || f.im.isNull()) {
+                    throw new Exception("Could not load " + toks[0]);
+                }
+                for (int i = 1; i + 2 < toks.length; i += 3) {
+                    f.names.add(FingerName.valueOf(toks[i].toUpperCase()));
+                    f.tips.add(new Point(Integer.parseInt(toks[i + 1]), Integer.parseInt(toks[i + 2])));
+                }
+                frames.add(f);
+            }
+            in.close();
+        } catch (Exception e) {
+            System.out.println("Could not read corpus from " + labelsFile);
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+
+        if (frames.size() == 0) {
+            System.out.println("No frames in " + labelsFile);
+            System.exit(1);
+        }
+        return frames;
+    } // end of loadCorpus()
+
+
+    private static ArrayList<DetectorConfig> allConfigs() {
+        // every combination of the values to try
+        ArrayList<DetectorConfig> configs = new ArrayList<DetectorConfig>();
+        for (int scale : IMG_SCALES) {
+            for (float area : SMALLEST_AREAS) {
+                for (int maxPoints : MAX_POINTS) {
+                    for (double epsilon : APPROX_EPSILONS) {
+                        for (int openIters : OPEN_ITERATIONS) {
+                            for (int depth : MIN_FINGER_DEPTHS) {
+                                for (int angle : MAX_FINGER_ANGLES) {
+                                    configs.add(new DetectorConfig(scale, area, maxPoints,
+                                            epsilon, openIters, depth, angle));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return configs;
+    } // end of allConfigs()
+
+
+    private static Result evaluate(DetectorConfig config, ArrayList<LabelledFrame> frames) {
+        /* one pass over the corpus to score the labelling (which also warms up
+        the JIT), then timed passes */
+        IplImage first = frames.get(0).im;
+        HandDetector detector = new HandDetector(HSV_FNM, first.width(), first.height(), config);
+
+        int numLabelled = 0;
+        int numNamed = 0;   // named tips detected
+        int numCorrect = 0;
+        for (LabelledFrame f : frames) {
+            numLabelled += f.tips.size();
+            if (detector.update(f.im)) {   // a missed hand scores nothing, not the last frame's tips
+                numNamed += countNamed(detector.getNamedFingers());
+                numCorrect += countCorrect(f, detector.getFingerTips(), detector.getNamedFingers());
+            }
+        }
+
+        long[] passTimes = new long[NUM_TIMED_PASSES];
+        for (int i = 0; i < NUM_TIMED_PASSES; i++) {
+            long startTime = System.nanoTime();
+            for (LabelledFrame f : frames) {
+                detector.update(f.im);
+            }
+            passTimes[i] = System.nanoTime() - startTime;
+        }
+        detector.close();
+
+        Arrays.sort(passTimes);
+        Result r = new Result();
+        r.config = config;
+        r.nsPerFrame = passTimes[NUM_TIMED_PASSES / 2] / frames.size();
+        int numScored = numLabelled + numNamed;
+        r.f1 = (numScored == 0) ? 0 : (2.0 * numCorrect / numScored);
+        return r;
+    } // end of evaluate()
+
+
+    private static int countNamed(ArrayList<FingerName> names) {
+        // count the detected tips given a finger name
+        int numNamed = 0;
+        for (FingerName name : names) {
+            if (name != FingerName.UNKNOWN) {
+                numNamed++;
+            }
+        }
+        return numNamed;
+    } // end of countNamed()
+
+
+    private static int countCorrect(LabelledFrame f, ArrayList<Point> tips,
+                                    ArrayList<FingerName> names) {
+        /* count the labelled tips that have a detected tip with the same name
+        close by; each detected tip matches at most one label, so the named
+        tips left over are the false positives */
+        boolean[] isMatched = new boolean[tips.size()];
+        int numCorrect = 0;
+        for (int i = 0; i < f.tips.size(); i++) {
+            for (int j = 0; j < tips.size(); j++) {
+                if (!isMatched[j] && (names.get(j) == f.names.get(i)) &&
+                        (tips.get(j).distance(f.tips.get(i)) <= MATCH_DIST)) {
+                    isMatched[j] = true;
+                    numCorrect++;
+                    break;
+                }
+            }
+        }
+        return numCorrect;
+    } // end of countCorrect()
+
+
+    private static ArrayList<Result> paretoFront(ArrayList<Result> results) {
+        /* keep the results that score higher than every faster one;
+        with equal times, the higher score comes first */
+        ArrayList<Result> sorted = new ArrayList<Result>(results);
+        Collections.sort(sorted, new Comparator<Result>() {
+            @Override
+            public int compare(Result a, Result b) {
+                if (a.nsPerFrame != b.nsPerFrame) {
+                    return Long.compare(a.nsPerFrame, b.nsPerFrame);
+                }
+                return Double.compare(b.f1, a.f1);
+            }
+        });
+
+        ArrayList<Result> front = new ArrayList<Result>();
+        double bestF1 = -1;
+        for (Result r : sorted) {
+            if (r.f1 > bestF1) {
+                front.add(r);
+                bestF1 = r.f1;
+            }
+        }
+        return front;
+    } // end of paretoFront()
+
+} // end of DetectorTuner class
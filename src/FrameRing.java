@@ -0,0 +1,341 @@
+import sun.misc.Unsafe;
+import sun.nio.ch.DirectBuffer;
+
+import java.awt.Point;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/* A ring of webcam frame slots in a memory-mapped file, shared between
+   the Handy process (the producer of frames) and a HandWorker process
+   (the consumer of frames, and producer of hand results).
+
+   There is exactly one writer for each counter, so no locks are needed:
+   the parent publishes frameSeq after copying a frame into its slot, and
+   the worker publishes resultSeq after writing the hand details into the
+   same slot. Ordered/volatile accesses through Unsafe keep the slot
+   contents visible before the counter that announces them. The parent
+   resets resultSeq only when starting a worker, while none is running.
+
+   File layout:
+     header:  frameSeq, resultSeq (longs), width, height, numSlots,
+              readyFlag, stopFlag, maxTips (ints)
+     slot i:  frame bytes (BGR, width*height*3, padded to 8),
+              result seq (long), cogX, cogY, axisAngle, numTips, foundFlag (ints),
+              maxTips * (x, y, finger name ordinal) (ints), padded to 8
+
+   maxTips is the detector's maxPoints setting, so every finger tip the
+   worker finds fits in the result block.
+
+   The address of the mapping comes from sun.nio.ch.DirectBuffer. Under
+   JDK 9+, javac and every JVM using the ring need the options returned by
+   javaOptions(). Because Unsafe and DirectBuffer are internal APIs, javac
+   always warns about them, and @SuppressWarnings can't turn those warnings
+   off.
+*/
+public class FrameRing {
+    // getResult() outcomes
+    public static final int STALE = -1;   // the slot doesn't hold the requested frame's result
+    public static final int NO_HAND = 0;
+    public static final int FOUND = 1;
+
+    private static final int FRAME_SEQ = 0;
+    private static final int RESULT_SEQ = 8;
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 20;
+    private static final int NUM_SLOTS = 24;
+    private static final int READY = 28;
+    private static final int STOP = 32;
+    private static final int MAX_TIPS = 36;
+    private static final int HEADER_SIZE = 64;
+
+    private static final int RESULT_HEADER_SIZE = 8 + 5 * 4;   // seq, cogX, cogY, angle, numTips, found
+
+    private static final Unsafe UNSAFE;
+
+    static {
+        try {
+            Field f = Unsafe.class.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            UNSAFE = (Unsafe) f.get(null);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private File ringFile;
+    private MappedByteBuffer buf;
+    private long address;   // native address of the mapping
+
+    private int width, height, numSlots, maxTips;
+    private int frameSize, slotSize;
+
+
+    private FrameRing(File ringFile, MappedByteBuffer buf) {
+        this.ringFile = ringFile;
+        this.buf = buf;
+        buf.order(ByteOrder.nativeOrder());
+        address = ((DirectBuffer) buf).address();
+
+        width = buf.getInt(WIDTH);
+        height = buf.getInt(HEIGHT);
+        numSlots = buf.getInt(NUM_SLOTS);
+        maxTips = buf.getInt(MAX_TIPS);
+        frameSize = ((width * height * 3) + 7) & ~7;   // keep the results 8-byte aligned
+        slotSize = frameSize + resultSize(maxTips);
+    } // end of FrameRing()
+
+
+    public static FrameRing create(int width, int height, int numSlots, int maxTips) throws IOException {
+        // called by the parent: make a new ring file, in shared memory if possible
+        File dir = new File("/dev/shm");
+        if (!dir.isDirectory()) {
+            dir = new File(System.getProperty("java.io.tmpdir"));
+        }
+        File f = File.createTempFile("handy-ring-", ".bin", dir);
+        f.deleteOnExit();
+
+        int frameSize = ((width * height * 3) + 7) & ~7;
+        long fileSize = HEADER_SIZE + (long) numSlots * (frameSize + resultSize(maxTips));
+        MappedByteBuffer mb = map(f, fileSize);
+        mb.order(ByteOrder.nativeOrder());
+        mb.putInt(WIDTH, width);
+        mb.putInt(HEIGHT, height);
+        mb.putInt(NUM_SLOTS, numSlots);
+        mb.putInt(MAX_TIPS, maxTips);
+        return new FrameRing(f, mb);
+    } // end of create()
+
+
+    private static int resultSize(int maxTips) {
+        // padded so that every slot stays 8-byte aligned
+        return (RESULT_HEADER_SIZE + maxTips * 3 * 4 + 7) & ~7;
+    }
+
+
+    public static FrameRing open(String fnm) throws IOException {
+        // called by the worker: map the ring file made by the parent
+        File f = new File(fnm);
+        return new FrameRing(f, map(f, f.length()));
+    } // end of open()
+
+
+    private static MappedByteBuffer map(File f, long size) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        try {
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            raf.close();   // the mapping stays valid after the channel is closed
+        }
+    } // end of map()
+
+
+    public static String[] javaOptions() {
+        // the java/javac options needed to use the ring: none before JDK 9
+        if (System.getProperty("java.specification.version").startsWith("1.")) {
+            return new String[0];
+        }
+        return new String[]{"--add-exports", "java.base/sun.nio.ch=ALL-UNNAMED"};
+    } // end of javaOptions()
+
+
+    public String getFileName() {
+        return ringFile.getAbsolutePath();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getNumSlots() {
+        return numSlots;
+    }
+
+
+    // ------------------------ counters and flags -----------------------
+
+    public long getFrameSeq() {
+        return UNSAFE.getLongVolatile(null, address + FRAME_SEQ);
+    }
+
+    public long getResultSeq() {
+        return UNSAFE.getLongVolatile(null, address + RESULT_SEQ);
+    }
+
+    public void setResultSeq(long seq) {
+        UNSAFE.putOrderedLong(null, address + RESULT_SEQ, seq);
+    }
+
+    public boolean isReady() {
+        return UNSAFE.getIntVolatile(null, address + READY) != 0;
+    }
+
+    public void setReady(boolean ready) {
+        UNSAFE.putIntVolatile(null, address + READY, ready ? 1 : 0);
+    }
+
+    public boolean isStopped() {
+        return UNSAFE.getIntVolatile(null, address + STOP) != 0;
+    }
+
+    public void stop() {
+        UNSAFE.putIntVolatile(null, address + STOP, 1);
+    }
+
+
+    // ------------------------ parent side -------------------------------
+
+    public boolean putFrame(ByteBuffer frame, int rowStep) {
+        /* copy a BGR frame into the next slot and publish it.
+        Returns false (dropping the frame) if the worker is a whole ring behind,
+        since the next slot may still be in use. */
+        int rowBytes = width * 3;
+        if ((rowStep < rowBytes) || (frame.capacity() < (height - 1) * rowStep + rowBytes)) {
+            throw new IllegalArgumentException("Frame is smaller than the ring's " +
+                    width + "x" + height + "x3");
+        }
+
+        long seq = getFrameSeq() + 1;
+        if (seq - getResultSeq() >= numSlots) {
+            return false;
+        }
+
+        ByteBuffer dst = buf.duplicate();
+        dst.position(slotOffset(seq));
+        if (rowStep == rowBytes) {   // no row padding, so one bulk copy
+            ByteBuffer src = frame.duplicate();
+            src.position(0).limit(rowBytes * height);
+            dst.put(src);
+        } else {
+            for (int y = 0; y < height; y++) {
+                ByteBuffer src = frame.duplicate();
+                src.position(y * rowStep).limit(y * rowStep + rowBytes);
+                dst.put(src);
+            }
+        }
+        UNSAFE.putOrderedLong(null, address + FRAME_SEQ, seq);   // frame bytes before the counter
+        return true;
+    } // end of putFrame()
+
+
+    public int getResult(long seq, Point cogPt, int[] axisAngle,
+                         ArrayList<Point> tips, ArrayList<FingerName> names) {
+        /* read the hand details for frame seq into the supplied objects.
+        Returns FOUND or NO_HAND (the worker's detector kept its previous
+        details), or STALE if the slot no longer (or never did) hold that
+        frame's result, in which case the objects may be partly changed. */
+        long pos = address + slotOffset(seq) + frameSize;
+        if (UNSAFE.getLongVolatile(null, pos) != seq) {
+            return STALE;
+        }
+        boolean isFound = UNSAFE.getInt(pos + 24) != 0;
+        cogPt.setLocation(UNSAFE.getInt(pos + 8), UNSAFE.getInt(pos + 12));
+        axisAngle[0] = UNSAFE.getInt(pos + 16);
+        int numTips = Math.min(UNSAFE.getInt(pos + 20), maxTips);
+
+        FingerName[] allNames = FingerName.values();
+        tips.clear();
+        names.clear();
+        long tipPos = pos + RESULT_HEADER_SIZE;
+        for (int i = 0; i < numTips; i++) {
+            tips.add(new Point(UNSAFE.getInt(tipPos), UNSAFE.getInt(tipPos + 4)));
+            names.add(allNames[UNSAFE.getInt(tipPos + 8)]);
+            tipPos += 12;
+        }
+
+        UNSAFE.loadFence();
+        if (UNSAFE.getLongVolatile(null, pos) != seq) {   // overwritten while reading
+            return STALE;
+        }
+        return isFound ? FOUND : NO_HAND;
+    } // end of getResult()
+
+
+    // ------------------------ worker side -------------------------------
+
+    public ByteBuffer getFrameBuffer(int slot) {
+        // a view of a slot's frame bytes, so the worker can read frames in place
+        ByteBuffer view = buf.duplicate();
+        view.position(HEADER_SIZE + slot * slotSize).limit(HEADER_SIZE + slot * slotSize + width * height * 3);
+        return view.slice();
+    } // end of getFrameBuffer()
+
+
+    public int slotIndex(long seq) {
+        return (int) (seq % numSlots);
+    }
+
+
+    public void putResult(long seq, boolean isFound, Point cogPt, int axisAngle,
+                          ArrayList<Point> tips, ArrayList<FingerName> names) {
+        // write the hand details for frame seq into its slot, then publish them
+        long pos = address + slotOffset(seq) + frameSize;
+        UNSAFE.putLongVolatile(null, pos, -1);   // mark the result as being rewritten
+
+        UNSAFE.putInt(pos + 8, cogPt.x);
+        UNSAFE.putInt(pos + 12, cogPt.y);
+        UNSAFE.putInt(pos + 16, axisAngle);
+        int numTips = Math.min(tips.size(), maxTips);
+        UNSAFE.putInt(pos + 20, numTips);
+        UNSAFE.putInt(pos + 24, isFound ? 1 : 0);
+
+        long tipPos = pos + RESULT_HEADER_SIZE;
+        for (int i = 0; i < numTips; i++) {
+            UNSAFE.putInt(tipPos, tips.get(i).x);
+            UNSAFE.putInt(tipPos + 4, tips.get(i).y);
+            UNSAFE.putInt(tipPos + 8, names.get(i).ordinal());
+            tipPos += 12;
+        }
+
+        UNSAFE.putOrderedLong(null, pos, seq);
+        setResultSeq(seq);
+    } // end of putResult()
+
+
+    private int slotOffset(long seq) {
+        return HEADER_SIZE + slotIndex(seq) * slotSize;
+    }
+
+
+    public void delete() {
+        /* unmap the ring, then remove its file. Windows won't delete a file
+        that is still mapped, and the GC may not release the mapping until
+        long after exit. The ring can't be used afterwards. */
+        unmap();
+        if (!ringFile.delete()) {
+            System.out.println("Could not delete frame ring " + ringFile);
+        }
+    } // end of delete()
+
+
+    private void unmap() {
+        // JDK 9+ frees a mapping with Unsafe.invokeCleaner(), JDK 8 with the buffer's cleaner
+        try {
+            try {
+                Method invokeCleaner = Unsafe.class.getMethod("invokeCleaner", ByteBuffer.class);
+                invokeCleaner.invoke(UNSAFE, buf);
+            } catch (NoSuchMethodException e) {   // JDK 8
+                Method cleanerMethod = buf.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buf);
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            System.out.println("Could not unmap frame ring: " + e);
+        }
+        buf = null;
+        address = 0;
+    } // end of unmap()
+
+} // end of FrameRing class
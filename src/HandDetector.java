@@ -15,17 +15,6 @@ import static org.bytedeco.javacpp.opencv_imgproc.*;
  * Created by Phuwarin on 1/29/2017.
  */
 public class HandDetector {
-    private static final int IMG_SCALE = 2;  // scaling applied to webcam image
-
-    private static final float SMALLEST_AREA = 10.0f;    // was 100.0f;
-    // ignore smaller contour areas
-
-    private static final int MAX_POINTS = 20;   // max number of points stored in an array
-
-    // used for simiplifying the defects list
-    private static final int MIN_FINGER_DEPTH = 2;
-    private static final int MAX_FINGER_ANGLE = 120;   // degrees
-
     // angle ranges of thumb and index finger of the left hand relative to its COG
     private static final int MIN_THUMB = 120;
     private static final int MAX_THUMB = 200;
@@ -34,6 +23,11 @@ public class HandDetector {
     private static final int MAX_INDEX = 120;
 
 
+    private static boolean isVerbose = true;   // report HSV settings and truncated defects
+
+    private DetectorConfig config;   // the settings that drive the detector's cost
+    private int imWidth, imHeight;   // size of the webcam image
+
     // HSV ranges defining the glove colour
     private int hueLower, hueUpper, satLower, satUpper, briLower, briUpper;
 
@@ -43,7 +37,7 @@ public class HandDetector {
     private IplImage imgThreshed;  // threshold for HSV settings
     private CvMemStorage contourStorage, approxStorage, hullStorage, defectsStorage;
 
-    private Font msgFont;
+    private HandOverlay overlay = null;   // cached drawing of the hand details
 
     // hand details
     private Point cogPt;           // center of gravity (COG) of contour
@@ -58,10 +52,21 @@ public class HandDetector {
     // finger identifications
     private ArrayList<FingerName> namedFingers;
 
+    private volatile long handVersion = 0;   // incremented whenever the hand details change
+    private volatile boolean isWarmUpStopped = false;   // set by stopWarmUp()
+
     public HandDetector(String hsvFnm, int width, int height) {
-        scaleImg = IplImage.create(width / IMG_SCALE, height / IMG_SCALE, 8, 3);
-        hsvImg = IplImage.create(width / IMG_SCALE, height / IMG_SCALE, 8, 3);     // for the HSV image
-        imgThreshed = IplImage.create(width / IMG_SCALE, height / IMG_SCALE, 8, 1);   // threshold image
+        this(hsvFnm, width, height, DetectorConfig.DEFAULT);
+    }  // end of HandDetector()
+
+    public HandDetector(String hsvFnm, int width, int height, DetectorConfig config) {
+        this.config = config;
+        imWidth = width;
+        imHeight = height;
+        int scale = config.getImgScale();
+        scaleImg = IplImage.create(width / scale, height / scale, 8, 3);
+        hsvImg = IplImage.create(width / scale, height / scale, 8, 3);     // for the HSV image
+        imgThreshed = IplImage.create(width / scale, height / scale, 8, 1);   // threshold image
 
         // storage for contour, hull, and defect calculations by OpenCV
         contourStorage = CvMemStorage.create();
@@ -69,19 +74,22 @@ public class HandDetector {
         hullStorage = CvMemStorage.create();
         defectsStorage = CvMemStorage.create();
 
-        msgFont = new Font("SansSerif", Font.BOLD, 18);
-
         cogPt = new Point();
         fingerTips = new ArrayList<Point>();
         namedFingers = new ArrayList<FingerName>();
 
-        tipPts = new Point[MAX_POINTS];   // coords of the finger tips
-        foldPts = new Point[MAX_POINTS];  // coords of the skin folds between fingers
-        depths = new float[MAX_POINTS];   // distances from tips to folds
+        tipPts = new Point[config.getMaxPoints()];   // coords of the finger tips
+        foldPts = new Point[config.getMaxPoints()];  // coords of the skin folds between fingers
+        depths = new float[config.getMaxPoints()];   // distances from tips to folds
 
         setHSVRanges(hsvFnm);
     }  // end of defaultConstructor()
 
+    public static void setVerbose(boolean verbose) {
+        // turn off per-detector and per-frame messages, e.g. while timing
+        isVerbose = verbose;
+    }
+
     private void setHSVRanges(String fnm) {
         /* read in three lines to set the lower/upper HSV ranges for the user's glove.
         These were previously stored using the HSV Selector application */
@@ -89,47 +97,130 @@ public class HandDetector {
             BufferedReader in = new BufferedReader(new FileReader(fnm));
             String line = in.readLine();   // get hues
             String[] toks = line.split("\\s+");
-            System.out.println("toks[0] = " + toks[0] + "\ttoks[1] = " + toks[1] + "\ttoks[2] = " + toks[2]);
+            if (isVerbose) {
+                System.out.println("toks[0] = " + toks[0] + "\ttoks[1] = " + toks[1] + "\ttoks[2] = " + toks[2]);
+            }
             hueLower = Integer.parseInt(toks[1]);
             hueUpper = Integer.parseInt(toks[2]);
 
             line = in.readLine();   // get saturations
             toks = line.split("\\s+");
-            System.out.println("toks[0] = " + toks[0] + "\ttoks[1] = " + toks[1] + "\ttoks[2] = " + toks[2]);
+            if (isVerbose) {
+                System.out.println("toks[0] = " + toks[0] + "\ttoks[1] = " + toks[1] + "\ttoks[2] = " + toks[2]);
+            }
             satLower = Integer.parseInt(toks[1]);
             satUpper = Integer.parseInt(toks[2]);
 
             line = in.readLine();   // get brightnesses
             toks = line.split("\\s+");
-            System.out.println("toks[0] = " + toks[0] + "\ttoks[1] = " + toks[1] + "\ttoks[2] = " + toks[2]);
+            if (isVerbose) {
+                System.out.println("toks[0] = " + toks[0] + "\ttoks[1] = " + toks[1] + "\ttoks[2] = " + toks[2]);
+            }
             briLower = Integer.parseInt(toks[1]);
             briUpper = Integer.parseInt(toks[2]);
 
             in.close();
-            System.out.println("Read HSV ranges from " + fnm);
+            if (isVerbose) {
+                System.out.println("Read HSV ranges from " + fnm);
+            }
         } catch (Exception e) {
             System.out.println("Could not read HSV ranges from " + fnm);
             System.exit(1);
         }
     }  // end of setHSVRanges()
 
-    public void update(IplImage im) {
+    public void warmUp(int numFrames) {
+        /* run up to numFrames synthetic frames containing a glove-coloured hand
+        through update() so the JIT compiles its hot paths before the first
+        webcam frame. Ends early if stopWarmUp() is called. */
+        long startTime = System.currentTimeMillis();
+
+        IplImage im = IplImage.create(imWidth, imHeight, 8, 3);
+        cvZero(im);
+        CvScalar gloveColour = gloveBGR();
+
+        // a palm with five fingers spread around it
+        CvPoint palm = cvPoint(imWidth / 2, imHeight * 2 / 3);
+        int palmRadius = imHeight / 8;
+        cvCircle(im, palm, palmRadius, gloveColour, CV_FILLED, 8, 0);
+        for (int i = 0; i < 5; i++) {
+            double theta = Math.toRadians(160 - i * 35);
+            CvPoint tip = cvPoint(palm.x() + (int) (Math.cos(theta) * palmRadius * 2.5),
+                    palm.y() - (int) (Math.sin(theta) * palmRadius * 2.5));
+            cvLine(im, palm, tip, gloveColour, palmRadius / 3, 8, 0);
+        }
+
+        int numDone = 0;
+        while ((numDone < numFrames) && !isWarmUpStopped) {
+            update(im);
+            numDone++;
+        }
+        im.release();
+
+        // forget the synthetic hand, so it doesn't affect the first real frame
+        cogPt.setLocation(0, 0);
+        contourAxisAngle = 0;
+        fingerTips.clear();
+        namedFingers.clear();
+        handVersion++;
+
+        System.out.println("Detector warm-up of " + numDone + " frames took " +
+                (System.currentTimeMillis() - startTime) + " ms");
+    }  // end of warmUp()
+
+    public void stopWarmUp() {
+        // end a warmUp() running in another thread, or skip one not yet started
+        isWarmUpStopped = true;
+    }  // end of stopWarmUp()
+
+    protected boolean isWarmUpStopped() {
+        return isWarmUpStopped;
+    }
+
+    private CvScalar gloveBGR() {
+        // convert the middle of the glove's HSV ranges into a BGR colour
+        IplImage hsvPixel = IplImage.create(1, 1, 8, 3);
+        IplImage bgrPixel = IplImage.create(1, 1, 8, 3);
+        cvSet(hsvPixel, cvScalar((hueLower + hueUpper) / 2,
+                (satLower + satUpper) / 2, (briLower + briUpper) / 2, 0.0));
+        cvCvtColor(hsvPixel, bgrPixel, CV_HSV2BGR);
+
+        CvScalar bgr = cvGet2D(bgrPixel, 0, 0);
+        CvScalar colour = cvScalar(bgr.val(0), bgr.val(1), bgr.val(2), 0.0);
+        hsvPixel.release();
+        bgrPixel.release();
+        return colour;
+    }  // end of gloveBGR()
+
+    public boolean update(IplImage im) {
+        /* returns false if no hand was found in im, in which case the
+        hand details from the previous update are left unchanged */
+        // reuse the storages' memory; no sequence is kept from the last update
+        cvClearMemStorage(contourStorage);
+        cvClearMemStorage(approxStorage);
+        cvClearMemStorage(hullStorage);
+        cvClearMemStorage(defectsStorage);
+
         cvResize(im, scaleImg); // reduce the size of the image to make processing faster
         cvCvtColor(scaleImg, hsvImg, CV_BGR2HSV); // convert image format to HSV
         cvInRangeS(hsvImg, cvScalar(hueLower, satLower, briLower, 0.0),
                 cvScalar(hueUpper, satUpper, briUpper, 0.0),
                 imgThreshed); // threshold image using loaded HSV settings for user's glove
-        cvMorphologyEx(imgThreshed, imgThreshed, null, null, CV_MOP_OPEN, 1);
+        if (config.getOpenIterations() > 0) {
+            cvMorphologyEx(imgThreshed, imgThreshed, null, null, CV_MOP_OPEN, config.getOpenIterations());
             /* erosion followed by dilation on the image to remove
             specks of white while retaining the image size
              */
+        }
         CvSeq bigContour = findBiggestContour(imgThreshed);
         if (bigContour == null) {
-            return;
+            return false;
         }
-        extractContourInfo(bigContour, IMG_SCALE); // find the COG and angle to horizontal of the contour
-        findFingerTips(bigContour, IMG_SCALE); // detect the fingertips position in the contour
+        extractContourInfo(bigContour, config.getImgScale()); // find the COG and angle to horizontal of the contour
+        findFingerTips(bigContour, config.getImgScale()); // detect the fingertips position in the contour
         nameFingers(cogPt, contourAxisAngle, fingerTips);
+        handVersion++;
+        return true;
     } // end of update()
 
     private CvSeq findBiggestContour(IplImage imgThreshed) {
@@ -142,7 +233,7 @@ public class HandDetector {
                 CV_RETR_LIST, CV_CHAIN_APPROX_SIMPLE);
 
         // find the largest contour in the list based on bounded box size
-        float maxArea = SMALLEST_AREA;
+        float maxArea = config.getSmallestArea();
         CvBox2D maxBox = null;
 
         while (!(contours == null)) {
@@ -244,7 +335,7 @@ public class HandDetector {
         CvSeq approxContour = cvApproxPoly(
                 bigContour, Loader.sizeof(CvContour.class),
                 approxStorage, CV_POLY_APPROX_DP,
-                3, 1);
+                config.getApproxEpsilon(), 1);
         // reduce number of points in the contour
 
         CvSeq hullSeq = cvConvexHull2(
@@ -256,9 +347,12 @@ public class HandDetector {
         // find the defect difference between the contour and hull
 
         int defectsTotal = defects.total();
-        if (defectsTotal > MAX_POINTS) {
-            System.out.println("Processing " + MAX_POINTS + " defect pts");
-            defectsTotal = MAX_POINTS;
+        int maxPoints = config.getMaxPoints();
+        if (defectsTotal > maxPoints) {
+            if (isVerbose) {
+                System.out.println("Processing " + maxPoints + " defect pts");
+            }
+            defectsTotal = maxPoints;
         }
 
         // copy defect information from defects sequence into arrays
@@ -290,7 +384,7 @@ public class HandDetector {
         fingerTips.clear();
 
         for (int i = 0; i < numPoints; i++) {
-            if (depths[i] < MIN_FINGER_DEPTH) {
+            if (depths[i] < config.getMinFingerDepth()) {
                 continue;
             }
 
@@ -299,7 +393,7 @@ public class HandDetector {
             int sdx = (i == numPoints - 1) ? 0 : (i + 1); // successor of i
 
             int angle = angleBetween(tipPts[i], foldPts[pdx], foldPts[sdx]);
-            if (angle >= MAX_FINGER_ANGLE) {
+            if (angle >= config.getMaxFingerAngle()) {
                 continue; // angle between finger and folds too wide
             }
 
@@ -431,54 +525,55 @@ public class HandDetector {
         }
     } // end of labelFwd()
 
-    public void draw(Graphics2D g2d) {
-        // draw information about the finger tips and the hand COG
-
-        int ulX, ulY;
+    public Point getCogPt() {
+        return cogPt;
+    }
 
-        if (fingerTips.size() == 0) {
-            return;
-        }
+    public int getContourAxisAngle() {
+        return contourAxisAngle;
+    }
 
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-                RenderingHints.VALUE_ANTIALIAS_ON);  // line smoothing
-        g2d.setPaint(Color.YELLOW);
-        g2d.setStroke(new BasicStroke(4));  // thick yellow pen
+    public ArrayList<Point> getFingerTips() {
+        return fingerTips;
+    }
 
-        ulX = fingerTips.get(0).x;
-        ulY = fingerTips.get(0).y;
+    public ArrayList<FingerName> getNamedFingers() {
+        return namedFingers;
+    }
 
-        // label the finger tips in red or green, and draw COG lines to named tips
-        g2d.setFont(msgFont);
-        for (int i = 0; i < fingerTips.size(); i++) {
-            Point pt = fingerTips.get(i);
+    public long getHandVersion() {
+        return handVersion;
+    }
 
-            if (pt.x < ulX) {
-                ulX = pt.x;
-            }
-            if (pt.y < ulY) {
-                ulY = pt.y;
-            }
+    protected void setHand(Point cog, int axisAngle,
+                           ArrayList<Point> tips,
+                           ArrayList<FingerName> names) {
+        // replace the hand details with ones found elsewhere (e.g. by a HandWorker)
+        cogPt.setLocation(cog);
+        contourAxisAngle = axisAngle;
+        fingerTips.clear();
+        fingerTips.addAll(tips);
+        namedFingers.clear();
+        namedFingers.addAll(names);
+        handVersion++;
+    } // end of setHand()
+
+    public void close() {
+        // release the OpenCV images and storage
+        scaleImg.release();
+        hsvImg.release();
+        imgThreshed.release();
+        contourStorage.release();
+        approxStorage.release();
+        hullStorage.release();
+        defectsStorage.release();
+    } // end of close()
 
-            if (namedFingers.get(i) == FingerName.UNKNOWN) {
-                g2d.setPaint(Color.RED);   // unnamed finger tip is red
-                g2d.drawOval(pt.x - 8, pt.y - 8, 16, 16);
-                g2d.drawString("" + i, pt.x, pt.y - 10);   // label it with a digit
-            } else {   // draw yellow line to the named finger tip from COG
-                g2d.setPaint(Color.YELLOW);
-                g2d.drawLine(cogPt.x, cogPt.y, pt.x, pt.y);
-
-                g2d.setPaint(Color.GREEN);   // named finger tip is green
-                g2d.drawOval(pt.x - 8, pt.y - 8, 16, 16);
-                g2d.drawString(namedFingers.get(i).toString().toLowerCase(), pt.x, pt.y - 10);
-            }
+    public void draw(Graphics2D g2d) {
+        // draw information about the finger tips and the hand COG
+        if (overlay == null) {   // made here, so a HandWorker never touches Java 2D
+            overlay = new HandOverlay(imWidth, imHeight, config.getMaxPoints());
         }
-
-        System.out.println("ulX = " + ulX + "\tulY = " + ulY);
-
-        // draw COG
-        g2d.setPaint(Color.GREEN);
-        g2d.fillOval(cogPt.x - 8, cogPt.y - 8, 16, 16);
-        //g2d.drawRect(ulX, ulY, 160, 160);
+        overlay.draw(g2d, this);
     }  // end of draw()
 }
@@ -0,0 +1,91 @@
+import java.awt.*;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+
+/* Draws HandDetector's finger and COG annotations into a translucent image
+   that is kept between paints. The image is only redrawn when the
+   detector's hand version changes, so repainting the panel more often
+   than the detector updates costs a single drawImage().
+*/
+public class HandOverlay {
+    private static final int TIP_SIZE = 16;   // diameter of the finger tip and COG circles
+
+    private BufferedImage overlayIm;
+    private Graphics2D overlayG2d;   // kept for the lifetime of the overlay
+    private long drawnVersion = -1;   // hand version currently in overlayIm
+
+    // labels for unknown finger tips, and for the named ones
+    private String[] digitLabels;
+    private String[] nameLabels;
+
+
+    public HandOverlay(int width, int height, int maxTips) {
+        // maxTips is the detector's maxPoints, the most finger tips it reports
+        overlayIm = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        overlayG2d = overlayIm.createGraphics();
+        overlayG2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON);  // line smoothing
+        overlayG2d.setStroke(new BasicStroke(4));  // thick pen
+        overlayG2d.setFont(new Font("SansSerif", Font.BOLD, 18));
+
+        digitLabels = new String[maxTips];
+        for (int i = 0; i < maxTips; i++) {
+            digitLabels[i] = Integer.toString(i);
+        }
+
+        FingerName[] names = FingerName.values();
+        nameLabels = new String[names.length];
+        for (FingerName name : names) {
+            nameLabels[name.ordinal()] = name.toString().toLowerCase();
+        }
+    } // end of HandOverlay()
+
+
+    public void draw(Graphics2D g2d, HandDetector detector) {
+        // redraw the overlay if the hand has changed, then paint it
+        long version = detector.getHandVersion();
+        if (version != drawnVersion) {
+            render(detector.getCogPt(), detector.getFingerTips(), detector.getNamedFingers());
+            drawnVersion = version;
+        }
+        g2d.drawImage(overlayIm, 0, 0, null);
+    } // end of draw()
+
+
+    private void render(Point cogPt, ArrayList<Point> fingerTips,
+                        ArrayList<FingerName> namedFingers) {
+        // clear the overlay to transparent
+        overlayG2d.setComposite(AlphaComposite.Clear);
+        overlayG2d.fillRect(0, 0, overlayIm.getWidth(), overlayIm.getHeight());
+        overlayG2d.setComposite(AlphaComposite.SrcOver);
+
+        if (fingerTips.size() == 0) {
+            return;
+        }
+
+        // label the finger tips in red or green, and draw COG lines to named tips
+        for (int i = 0; i < fingerTips.size(); i++) {
+            Point pt = fingerTips.get(i);
+            FingerName name = namedFingers.get(i);
+
+            if (name == FingerName.UNKNOWN) {
+                overlayG2d.setPaint(Color.RED);   // unnamed finger tip is red
+                overlayG2d.drawOval(pt.x - 8, pt.y - 8, TIP_SIZE, TIP_SIZE);
+                overlayG2d.drawString(digitLabels[i], pt.x, pt.y - 10);   // label it with a digit
+            } else {   // draw yellow line to the named finger tip from COG
+                overlayG2d.setPaint(Color.YELLOW);
+                overlayG2d.drawLine(cogPt.x, cogPt.y, pt.x, pt.y);
+
+                overlayG2d.setPaint(Color.GREEN);   // named finger tip is green
+                overlayG2d.drawOval(pt.x - 8, pt.y - 8, TIP_SIZE, TIP_SIZE);
+                overlayG2d.drawString(nameLabels[name.ordinal()], pt.x, pt.y - 10);
+            }
+        }
+
+        // draw COG
+        overlayG2d.setPaint(Color.GREEN);
+        overlayG2d.fillOval(cogPt.x - 8, cogPt.y - 8, TIP_SIZE, TIP_SIZE);
+    } // end of render()
+
+} // end of HandOverlay class
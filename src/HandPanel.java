@@ -17,6 +17,7 @@ import org.bytedeco.javacv.*;
 import org.bytedeco.javacv.Frame;
 
 import java.awt.*;
+import java.lang.management.ManagementFactory;
 import javax.swing.*;
 
 
@@ -29,6 +30,11 @@ public class HandPanel extends JPanel implements Runnable {
 
     private static final int CAMERA_ID = 1;
 
+    private static final String CONFIG_FNM = "detectorConfig.txt";   // optional detector settings, e.g. from DetectorTuner
+
+    private static final int WARMUP_FRAMES = 500;
+    // most synthetic frames run through the detector at start-up; it stops once the camera is ready
+
 
     private IplImage snapIm = null;
     private volatile boolean isRunning;
@@ -41,8 +47,18 @@ public class HandPanel extends JPanel implements Runnable {
 
     private HandDetector detector = null;   // for detecting hand and fingers
 
+    private NativePreloader preloader;   // non-null when started in fast mode
+    private boolean useWorker;   // detect in a HandWorker process
+
 
     public HandPanel() {
+        this(null, false);
+    } // end of HandPanel()
+
+
+    public HandPanel(NativePreloader preloader, boolean useWorker) {
+        this.preloader = preloader;
+        this.useWorker = useWorker;
         setBackground(Color.white);
         msgFont = new Font("SansSerif", Font.BOLD, 18);
 
@@ -62,15 +78,21 @@ public class HandPanel extends JPanel implements Runnable {
         Find the coloured rectangles in the image using HandDetector objects.
         The time statistics gathered here include the time taken to detect movement. */
 
-        FrameGrabber grabber = initGrabber(CAMERA_ID);
-        if (grabber == null) {
-            return;
-        }
+        FrameGrabber grabber;
+        if (preloader == null) {
+            grabber = initGrabber(CAMERA_ID);
+            if (grabber == null) {
+                return;
+            }
 
-        detector = new HandDetector("gloveHSV.txt", WIDTH, HEIGHT);
-        // include the HSV color info about the user's gloved hand
+            detector = createDetector();
+            // include the HSV color info about the user's gloved hand
+        } else {
+            grabber = fastInit();
+        }
 
         long duration;
+        boolean isHandReported = false;
         isRunning = true;
         isFinished = false;
 
@@ -79,9 +101,14 @@ public class HandPanel extends JPanel implements Runnable {
 
             snapIm = picGrab(grabber, CAMERA_ID);
             imageCount++;
-            detector.update(snapIm);
+            boolean isFound = detector.update(snapIm);
             repaint();
 
+            if (isFound && !isHandReported) {
+                reportFirstDetection();
+                isHandReported = true;
+            }
+
             duration = System.currentTimeMillis() - startTime;
             totalTime += duration;
             if (duration < DELAY) {
@@ -93,11 +120,57 @@ public class HandPanel extends JPanel implements Runnable {
             }
         }
         closeGrabber(grabber, CAMERA_ID);
+        detector.close();
         System.out.println("Execution terminated");
         isFinished = true;
     }  // end of run()
 
 
+    private HandDetector createDetector() {
+        DetectorConfig config = DetectorConfig.load(CONFIG_FNM);
+        if (useWorker) {
+            return new RemoteHandDetector("gloveHSV.txt", WIDTH, HEIGHT, config);
+        }
+        return new HandDetector("gloveHSV.txt", WIDTH, HEIGHT, config);
+    }  // end of createDetector()
+
+
+    private FrameGrabber fastInit() {
+        /* wait for the native libraries, then open the camera while the
+        detector is warmed up on another thread. The synthetic warm-up
+        frames get the JIT to compile update()'s hot paths, but only while
+        the camera is starting, so they never delay the first live frame. */
+        preloader.await();
+
+        final HandDetector hd = createDetector();
+        Thread warmer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                hd.warmUp(WARMUP_FRAMES);
+            }
+        }, "detector-warm-up");
+        warmer.start();
+
+        FrameGrabber grabber = initGrabber(CAMERA_ID);
+        hd.stopWarmUp();
+        try {
+            warmer.join();   // at most one more warm-up frame
+        } catch (InterruptedException e) {
+            System.out.println("Interrupted while warming up hand detector");
+        }
+        detector = hd;
+        return grabber;
+    }  // end of fastInit()
+
+
+    private void reportFirstDetection() {
+        // time from JVM start until a hand is first found in a live frame
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.out.println("Time to first detection: " +
+                (System.currentTimeMillis() - jvmStart) + " ms");
+    }  // end of reportFirstDetection()
+
+
     private FrameGrabber initGrabber(int ID) {
         FrameGrabber grabber = null;
         System.out.println("Initializing grabber for " + videoInput.getDeviceName(ID) + " ...");
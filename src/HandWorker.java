@@ -0,0 +1,99 @@
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.opencv_core.*;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.bytedeco.javacpp.opencv_core.*;
+
+/* The child process started by RemoteHandDetector. It runs HandDetector's
+   native OpenCV pipeline on frames read in place from a FrameRing, and
+   writes the hand details back into the ring. If OpenCV crashes, only
+   this process dies; the parent notices and starts a new one. The worker
+   exits when the parent sets the ring's stop flag or the parent goes away.
+
+   Usage: java HandWorker <ring file> <HSV file> <warm-up frames> <detector config> [-echo]
+   With -echo no detection is done, so RingBenchmark can time the IPC alone.
+*/
+public class HandWorker {
+    private static final long POLL_NS = 100000;   // 0.1 ms between checks for a new frame
+    // at least 1 ms on Windows, often a 15.6 ms timer tick; see RingBenchmark
+
+    public static void main(String[] args) throws Exception {
+        watchParent();
+        FrameRing ring = FrameRing.open(args[0]);
+        boolean isEcho = (args.length > 4) && args[4].equals("-echo");
+
+        HandDetector detector = null;
+        IplImage[] slotIms = null;
+        if (!isEcho) {
+            detector = new HandDetector(args[1], ring.getWidth(), ring.getHeight(),
+                    DetectorConfig.parse(args[3]));
+            detector.warmUp(Integer.parseInt(args[2]));
+
+            // one image header per slot, pointing straight at the ring's frame bytes
+            slotIms = new IplImage[ring.getNumSlots()];
+            for (int i = 0; i < slotIms.length; i++) {
+                slotIms[i] = IplImage.createHeader(ring.getWidth(), ring.getHeight(), IPL_DEPTH_8U, 3);
+                cvSetData(slotIms[i], new BytePointer(ring.getFrameBuffer(i)), ring.getWidth() * 3);
+            }
+        }
+
+        Point noCog = new Point();
+        ArrayList<Point> noTips = new ArrayList<Point>();
+        ArrayList<FingerName> noNames = new ArrayList<FingerName>();
+
+        /* the parent set resultSeq to the last frame sent before this worker
+        was started; frames sent while it was starting up are still processed */
+        long lastDone = ring.getResultSeq();
+        ring.setReady(true);
+
+        while (!ring.isStopped()) {
+            long seq = ring.getFrameSeq();
+            if (seq == lastDone) {
+                LockSupport.parkNanos(POLL_NS);
+                continue;
+            }
+
+            // always work on the newest frame, skipping any that arrived meanwhile
+            if (isEcho) {
+                ring.putResult(seq, true, noCog, 0, noTips, noNames);
+            } else {
+                boolean isFound = detector.update(slotIms[ring.slotIndex(seq)]);
+                ring.putResult(seq, isFound, detector.getCogPt(), detector.getContourAxisAngle(),
+                        detector.getFingerTips(), detector.getNamedFingers());
+            }
+            lastDone = seq;
+        }
+
+        if (detector != null) {
+            detector.close();
+        }
+        System.exit(0);
+    } // end of main()
+
+
+    private static void watchParent() {
+        /* the parent keeps our stdin open without writing to it, so end-of-file
+        means it has gone. This doesn't depend on frames arriving, so a worker
+        can warm up or wait for a slow camera for as long as it needs. */
+        Thread watcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (System.in.read() != -1) {
+                        // ignore anything written
+                    }
+                } catch (IOException e) {
+                    System.out.println("Lost stdin: " + e.getMessage());
+                }
+                System.exit(0);
+            }
+        }, "parent-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    } // end of watchParent()
+
+} // end of HandWorker class
@@ -13,16 +13,20 @@ public class Handy extends JFrame {
     // GUI components
     private HandPanel handPanel;
 
-    public Handy() {
+    public Handy(boolean fastStart, boolean useWorker) {
         super("Hand Detector");
 
         Container c = getContentPane();
         c.setLayout(new BorderLayout());
 
-        // preload the opencv_objdetect module to work around a known bug.
-        Loader.load(opencv_objdetect.class);
-
-        handPanel = new HandPanel(); // the webcam pictures and drums appear here
+        if (fastStart) {
+            // load the native libraries in the background; HandPanel waits for them
+            handPanel = new HandPanel(new NativePreloader(), useWorker);
+        } else {
+            // preload the opencv_objdetect module to work around a known bug.
+            Loader.load(opencv_objdetect.class);
+            handPanel = new HandPanel(null, useWorker); // the webcam pictures and drums appear here
+        }
         c.add(handPanel, BorderLayout.CENTER);
 
         addWindowListener(new WindowAdapter() {
@@ -40,6 +44,19 @@ public class Handy extends JFrame {
     } // end of defaultConstructor()
 
     public static void main(String[] args) {
-        new Handy();
+        /* -fast    load native libraries in the background and warm up the detector
+           -worker  run the OpenCV detection in a separate, restartable process */
+        boolean fastStart = false;
+        boolean useWorker = false;
+        for (String arg : args) {
+            if (arg.equals("-fast")) {
+                fastStart = true;
+            } else if (arg.equals("-worker")) {
+                useWorker = true;
+            } else {
+                System.out.println("Unknown option: " + arg);
+            }
+        }
+        new Handy(fastStart, useWorker);
     } // end of main
 } // end of Handy class
@@ -0,0 +1,72 @@
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.javacpp.opencv_core;
+import org.bytedeco.javacpp.opencv_imgproc;
+import org.bytedeco.javacpp.opencv_objdetect;
+import org.bytedeco.javacpp.videoInputLib;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/* Loads the JavaCPP native libraries used by HandPanel and HandDetector
+   on a small pool of background threads, so that the GUI thread is not
+   blocked while the DLLs are extracted and linked. HandPanel calls
+   await() before touching the grabber or the detector.
+*/
+public class NativePreloader {
+    // the JavaCPP classes whose native libraries are needed before the first frame
+    private static final Class[] NATIVE_CLASSES = {
+            opencv_core.class, opencv_imgproc.class,
+            opencv_objdetect.class,   // preloaded to work around a known bug
+            videoInputLib.class
+    };
+
+    private ExecutorService loaderPool;
+    private ArrayList<Future<String>> loads;
+    private long startTime;
+
+    public NativePreloader() {
+        startTime = System.currentTimeMillis();
+        loaderPool = Executors.newFixedThreadPool(NATIVE_CLASSES.length, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "native-preloader");
+                t.setDaemon(true);   // never keep the JVM alive
+                return t;
+            }
+        });
+
+        loads = new ArrayList<Future<String>>();
+        for (final Class cls : NATIVE_CLASSES) {
+            loads.add(loaderPool.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return Loader.load(cls);
+                }
+            }));
+        }
+        loaderPool.shutdown();   // no more work will be submitted
+    } // end of NativePreloader()
+
+
+    public void await() {
+        /* block until every native library has been loaded; a library that
+        fails to load is fatal, just as it would be without preloading */
+        for (int i = 0; i < loads.size(); i++) {
+            try {
+                loads.get(i).get();
+            } catch (Exception e) {
+                System.out.println("Could not load native library for " +
+                        NATIVE_CLASSES[i].getSimpleName());
+                System.out.println(e.getMessage());
+                System.exit(1);
+            }
+        }
+        System.out.println("Native libraries loaded in " +
+                (System.currentTimeMillis() - startTime) + " ms");
+    } // end of await()
+
+} // end of NativePreloader class
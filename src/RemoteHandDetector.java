@@ -0,0 +1,262 @@
+import org.bytedeco.javacpp.opencv_core.*;
+
+import java.awt.Point;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.bytedeco.javacpp.opencv_core.*;
+import static org.bytedeco.javacpp.opencv_imgproc.*;
+
+/* A HandDetector whose OpenCV pipeline runs in a supervised HandWorker
+   child process, so that a native crash inside OpenCV kills only the
+   worker rather than the whole application.
+
+   Frames are copied into a memory-mapped FrameRing, and the hand details
+   come back through the same ring. A worker that has died is restarted
+   on the next update(). One that has not answered for MAX_MISSED_FRAMES
+   frames (MAX_START_FRAMES while it is starting up) is killed and
+   restarted. Workers that keep failing before producing a result are
+   restarted after 0, 1, 3, 7 and then every MAX_RESTART_DELAY frames,
+   for as long as they keep failing. Until a new worker is up, the last
+   hand details found are kept.
+*/
+public class RemoteHandDetector extends HandDetector {
+    private static final int NUM_SLOTS = 4;   // frames the worker may fall behind by
+    private static final int MAX_MISSED_FRAMES = 10;
+    // frames without a result before a worker is assumed to be stuck
+    private static final int MAX_START_FRAMES = 50;
+    // frames allowed for a new (unwarmed) worker to get ready
+    private static final int MAX_RESTART_DELAY = 15;
+    // longest back-off, in frames, between restarts of a failing worker
+
+    private static final long RESULT_WAIT = 100;   // max ms to wait for each frame's result
+    private static final long POLL_NS = 100000;   // 0.1 ms between checks for a result
+    // at least 1 ms on Windows, often a 15.6 ms timer tick; see RingBenchmark
+    private static final long START_WAIT = 30000;   // max ms to wait for a warmed-up worker
+    private static final long STOP_WAIT = 1000;   // max ms to wait for a worker to exit
+
+    private String hsvFnm;
+    private DetectorConfig config;
+    private FrameRing ring;
+    private Process worker = null;
+    private int warmUpFrames = 0;   // only the first worker is warmed up
+
+    private int missedFrames = 0;   // frames since the worker last answered
+    private int failedStarts = 0;   // worker failures since the last result
+    private int framesUntilRestart = 0;   // backing off before the next start
+
+    private IplImage resizedIm = null;   // for frames not the size of the ring
+    private boolean isBadFormatReported = false;
+
+    // the hand details read from the ring
+    private Point cog = new Point();
+    private int[] axisAngle = new int[1];
+    private ArrayList<Point> tips = new ArrayList<Point>();
+    private ArrayList<FingerName> names = new ArrayList<FingerName>();
+
+
+    public RemoteHandDetector(String hsvFnm, int width, int height, DetectorConfig config) {
+        super(hsvFnm, width, height, config);
+        this.hsvFnm = hsvFnm;
+        this.config = config;
+        try {
+            ring = FrameRing.create(width, height, NUM_SLOTS, config.getMaxPoints());
+            // room for every finger tip the detector can report
+        } catch (Exception e) {
+            System.out.println("Could not create frame ring");
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+        System.out.println("Frame ring: " + ring.getFileName());
+    }  // end of RemoteHandDetector()
+
+
+    @Override
+    public void warmUp(int numFrames) {
+        /* start the first worker, warming it up, and wait until it is ready.
+        stopWarmUp() ends the wait, but the worker finishes its warm-up in its
+        own process, and update() skips frames until it is ready */
+        warmUpFrames = numFrames;
+        startWorker();
+
+        long startTime = System.currentTimeMillis();
+        while (!ring.isReady() && worker.isAlive() && !isWarmUpStopped() &&
+                (System.currentTimeMillis() - startTime < START_WAIT)) {
+            LockSupport.parkNanos(POLL_NS * 10);
+        }
+        System.out.println("Hand worker " + (ring.isReady() ? "ready" : "still warming up") +
+                " after " + (System.currentTimeMillis() - startTime) + " ms");
+    }  // end of warmUp()
+
+
+    @Override
+    public boolean update(IplImage im) {
+        /* returns true only if the worker found a hand in this frame;
+        otherwise the hand details are the last ones found */
+        IplImage frameIm = fitToRing(im);
+        if ((frameIm == null) || !superviseWorker()) {
+            return false;
+        }
+
+        if (!ring.putFrame(frameIm.getByteBuffer(), frameIm.widthStep())) {
+            missedFrames++;   // worker is a whole ring behind
+            return false;
+        }
+
+        long seq = ring.getFrameSeq();
+        long startTime = System.currentTimeMillis();
+        while (ring.isReady() && (ring.getResultSeq() < seq) && worker.isAlive() &&
+                (System.currentTimeMillis() - startTime < RESULT_WAIT)) {
+            LockSupport.parkNanos(POLL_NS);
+        }   // no waiting while a worker is still starting up
+
+        long resultSeq = ring.getResultSeq();
+        boolean isFound = false;
+        if (resultSeq > 0) {
+            if (ring.getResult(resultSeq, cog, axisAngle, tips, names) == FrameRing.FOUND) {
+                setHand(cog, axisAngle[0], tips, names);
+                isFound = (resultSeq == seq);
+            }
+        }
+
+        if (resultSeq < seq) {
+            missedFrames++;
+        } else {
+            missedFrames = 0;
+            failedStarts = 0;   // this worker is working
+        }
+        return isFound;
+    }  // end of update()
+
+
+    private IplImage fitToRing(IplImage im) {
+        /* the ring holds 8-bit BGR frames of a fixed size, so resize any
+        other size (as HandDetector's cvResize() would), and reject other
+        formats */
+        if ((im.depth() != IPL_DEPTH_8U) || (im.nChannels() != 3)) {
+            if (!isBadFormatReported) {
+                System.out.println("Hand worker needs 8-bit, 3-channel frames, not depth " +
+                        im.depth() + " with " + im.nChannels() + " channels");
+                isBadFormatReported = true;
+            }
+            return null;
+        }
+        if ((im.width() == ring.getWidth()) && (im.height() == ring.getHeight())) {
+            return im;
+        }
+
+        if (resizedIm == null) {
+            resizedIm = IplImage.create(ring.getWidth(), ring.getHeight(), IPL_DEPTH_8U, 3);
+        }
+        cvResize(im, resizedIm);
+        return resizedIm;
+    }  // end of fitToRing()
+
+
+    private boolean superviseWorker() {
+        /* restart a worker that has died, or that hasn't answered within its
+        allowance of frames, backing off after repeated failures.
+        Returns false if there is no worker to send this frame to. */
+        if (framesUntilRestart > 0) {
+            framesUntilRestart--;
+            if (framesUntilRestart > 0) {
+                return false;
+            }
+            startWorker();
+            return true;
+        }
+        if (worker == null) {
+            startWorker();
+            return true;
+        }
+
+        String failure;
+        if (!worker.isAlive()) {
+            failure = "died (exit code " + worker.exitValue() + ")";
+        } else if (ring.isReady() && (missedFrames > MAX_MISSED_FRAMES)) {
+            failure = "not answering";
+            stopWorker();
+        } else if (!ring.isReady() && (missedFrames > MAX_START_FRAMES)) {
+            failure = "not ready after " + MAX_START_FRAMES + " frames";
+            stopWorker();
+        } else {
+            return true;   // worker is fine
+        }
+
+        /* back off 0, 1, 3, 7, then MAX_RESTART_DELAY frames, but never give
+        up: a crash caused by what the camera sees stops when the scene changes */
+        failedStarts++;
+        framesUntilRestart = (failedStarts > 4) ? MAX_RESTART_DELAY :
+                (1 << (failedStarts - 1)) - 1;
+        System.out.println("Hand worker " + failure + "; restarting after " +
+                framesUntilRestart + " frames (failure " + failedStarts + " in a row)");
+        if (framesUntilRestart == 0) {
+            startWorker();
+            return true;
+        }
+        return false;
+    }  // end of superviseWorker()
+
+
+    private void stopWorker() {
+        // kill the worker, and wait briefly so it can't write into the ring afterwards
+        try {
+            worker.destroyForcibly().waitFor(STOP_WAIT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            System.out.println("Interrupted while stopping hand worker");
+        }
+    }  // end of stopWorker()
+
+
+    private void startWorker() {
+        /* no worker is running now, so the parent may write resultSeq: frames
+        sent before this start are skipped, later ones go to the new worker */
+        ring.setReady(false);
+        ring.setResultSeq(ring.getFrameSeq());
+        missedFrames = 0;
+
+        ArrayList<String> cmd = new ArrayList<String>();
+        cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        cmd.addAll(Arrays.asList(FrameRing.javaOptions()));
+        cmd.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"),
+                "-Djava.library.path=" + System.getProperty("java.library.path"),
+                "HandWorker", ring.getFileName(), hsvFnm, "" + warmUpFrames, config.toString()));
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+        pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);   // the worker's messages and crash reports
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);    // go to our console
+        // stdin stays a pipe, which the worker watches to see if we've gone
+        try {
+            worker = pb.start();
+        } catch (Exception e) {
+            System.out.println("Could not start hand worker");
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+        warmUpFrames = 0;   // restarts must be quick, so skip warming them up
+    }  // end of startWorker()
+
+
+    @Override
+    public void close() {
+        // ask the worker to finish, then remove the ring file
+        ring.stop();
+        if (worker != null) {
+            try {
+                if (!worker.waitFor(STOP_WAIT, TimeUnit.MILLISECONDS)) {
+                    stopWorker();
+                }
+            } catch (InterruptedException e) {
+                stopWorker();
+            }
+        }
+        ring.delete();
+        if (resizedIm != null) {
+            resizedIm.release();
+        }
+        super.close();
+    }  // end of close()
+
+} // end of RemoteHandDetector class
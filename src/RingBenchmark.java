@@ -0,0 +1,122 @@
+import java.awt.Point;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/* Measures the inter-process overhead that RemoteHandDetector adds to each
+   640x480 frame, in two parts: the copy of the frame into the FrameRing
+   (putFrame), and the notification latency, from publishing the frame
+   until its (empty) result is back. The worker is run with -echo, so no
+   OpenCV work is included in the times.
+
+   Both sides poll with LockSupport.parkNanos(), so the notification
+   latency depends on the OS timer, not the ring. The length of one
+   parkNanos(POLL_NS) is measured and printed too. On Linux it is about
+   POLL_NS plus some tens of us. On Windows, a park of less than 1 ms
+   waits at least 1 ms, and usually a whole timer tick (15.6 ms) unless
+   another program has raised the timer resolution. Run the benchmark on
+   the OS Handy is used on, which is Windows.
+
+   Usage: java RingBenchmark [number of frames]
+*/
+public class RingBenchmark {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final int NUM_SLOTS = 4;
+    private static final long POLL_NS = 100000;   // same polling as RemoteHandDetector
+
+    private static final int WARMUP_FRAMES = 2000;   // not timed
+    private static final int NUM_FRAMES = 10000;
+    private static final int NUM_PARKS = 1000;   // parkNanos(POLL_NS) calls timed
+
+
+    public static void main(String[] args) throws Exception {
+        int numFrames = (args.length > 0) ? Integer.parseInt(args[0]) : NUM_FRAMES;
+
+        FrameRing ring = FrameRing.create(WIDTH, HEIGHT, NUM_SLOTS,
+                DetectorConfig.DEFAULT.getMaxPoints());
+        ArrayList<String> cmd = new ArrayList<String>();
+        cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        cmd.addAll(Arrays.asList(FrameRing.javaOptions()));
+        cmd.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"),
+                "HandWorker", ring.getFileName(), "", "0", DetectorConfig.DEFAULT.toString(), "-echo"));
+        Process worker = new ProcessBuilder(cmd)
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();   // stdin stays a pipe
+        while (!ring.isReady()) {
+            LockSupport.parkNanos(1000000);
+        }
+
+        ByteBuffer frame = ByteBuffer.allocateDirect(WIDTH * HEIGHT * 3);
+        Point cog = new Point();
+        int[] axisAngle = new int[1];
+        ArrayList<Point> tips = new ArrayList<Point>();
+        ArrayList<FingerName> names = new ArrayList<FingerName>();
+
+        roundTrips(ring, frame, WARMUP_FRAMES, null, null, cog, axisAngle, tips, names);
+        long[] copyTimes = new long[numFrames];
+        long[] waitTimes = new long[numFrames];
+        roundTrips(ring, frame, numFrames, copyTimes, waitTimes, cog, axisAngle, tips, names);
+
+        ring.stop();
+        worker.waitFor();
+        ring.delete();
+
+        long[] parkTimes = new long[NUM_PARKS];
+        for (int i = 0; i < NUM_PARKS; i++) {
+            long startTime = System.nanoTime();
+            LockSupport.parkNanos(POLL_NS);
+            parkTimes[i] = System.nanoTime() - startTime;
+        }
+
+        System.out.println("Frame ring overhead for " + WIDTH + "x" + HEIGHT + " frames (" +
+                numFrames + " frames, " + System.getProperty("os.name") + ")");
+        printStats("putFrame copy", copyTimes);
+        printStats("notification to result", waitTimes);
+        printStats("parkNanos(" + POLL_NS / 1000 + " us)", parkTimes);
+    } // end of main()
+
+
+    private static void printStats(String label, long[] times) {
+        Arrays.sort(times);
+        long total = 0;
+        for (long t : times) {
+            total += t;
+        }
+        System.out.printf("  %-24s mean %8.1f us, p50 %8.1f us, p99 %8.1f us, max %8.1f us%n",
+                label + ":", total / 1000.0 / times.length, times[times.length / 2] / 1000.0,
+                times[(int) (times.length * 0.99)] / 1000.0, times[times.length - 1] / 1000.0);
+    } // end of printStats()
+
+
+    private static void roundTrips(FrameRing ring, ByteBuffer frame, int numFrames,
+                                   long[] copyTimes, long[] waitTimes,
+                                   Point cog, int[] axisAngle,
+                                   ArrayList<Point> tips, ArrayList<FingerName> names) {
+        /* send each frame and poll until its result is back, as
+        RemoteHandDetector.update() does. Each result is back before the next
+        frame is sent, so putFrame() always has a free slot. */
+        for (int i = 0; i < numFrames; i++) {
+            long startTime = System.nanoTime();
+            if (!ring.putFrame(frame, WIDTH * 3)) {
+                throw new IllegalStateException("No free slot for frame " + i);
+            }
+            long copiedTime = System.nanoTime();
+
+            long seq = ring.getFrameSeq();
+            while (ring.getResultSeq() < seq) {
+                LockSupport.parkNanos(POLL_NS);
+            }
+            if (ring.getResult(seq, cog, axisAngle, tips, names) < 0) {
+                System.out.println("Lost result for frame " + seq);
+            }
+            if (copyTimes != null) {
+                copyTimes[i] = copiedTime - startTime;
+                waitTimes[i] = System.nanoTime() - copiedTime;
+            }
+        }
+    } // end of roundTrips()
+
+} // end of RingBenchmark class